@@ -0,0 +1,75 @@
+package cucumber.runtime.formatter.jira;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import gherkin.formatter.model.Result;
+
+/**
+ * The combined result of all of the scenarios tagged with an issue.
+ * One line of a partial results file written by a CI shard - see {@link JiraResultsReducer}.
+ * While the tests are running, results are accumulated in an {@link IssueStateStore}.
+ */
+public class IssueResult {
+	/** Error messages are truncated to this many characters */
+	public static final int MAX_ERROR_LENGTH = 4000;
+
+	/**
+	 * Least to most severe - the most severe result of any step or scenario wins,
+	 * and the first of several equally severe results is kept.
+	 * eg: an "undefined" step replaces an earlier "pending" one.
+	 * Statuses which aren't listed here rank with "undefined", but are reported unchanged.
+	 */
+	private static final List<String> SEVERITY = Arrays.asList( Result.PASSED, Result.SKIPPED.getStatus(), "pending", Result.UNDEFINED.getStatus(), Result.FAILED );
+
+	@JsonProperty
+	public String key;
+
+	@JsonProperty
+	public String status = Result.PASSED;
+
+	/** Formatted for JIRA, null if the status is "passed" */
+	@JsonProperty
+	public String error;
+
+	/** Total duration of the steps in nanoseconds */
+	@JsonProperty
+	public long duration;
+
+	/** Number of scenarios which contributed to this result */
+	@JsonProperty
+	public int scenarios;
+
+	/** To be used by the JSON parser only */
+	public IssueResult() {}
+
+	public IssueResult( String key ) {
+		this.key = key;
+	}
+
+	/** @return 0 for "passed", higher values for worse results */
+	public static int severity( String status ) {
+		int severity = SEVERITY.indexOf( status );
+		// Unknown statuses are treated as being just short of a failure
+		return severity < 0 ? SEVERITY.indexOf( Result.UNDEFINED.getStatus() ) : severity;
+	}
+
+	/** @return the known status for a value returned by {@link #severity(String)} */
+	public static String status( int severity ) {
+		return SEVERITY.get( severity );
+	}
+
+	public static String truncate( String error ) {
+		if( error == null || error.length() <= MAX_ERROR_LENGTH ) {
+			return error;
+		}
+		return error.substring( 0, MAX_ERROR_LENGTH - 3 ) + "...";
+	}
+
+	@Override
+	public String toString() {
+		return key + ": " + status + " (" + scenarios + " scenarios)";
+	}
+}
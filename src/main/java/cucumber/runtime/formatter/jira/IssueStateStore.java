@@ -0,0 +1,146 @@
+package cucumber.runtime.formatter.jira;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-issue results for the whole run, kept in parallel primitive arrays indexed by an int ID
+ * so that very large suites don't hold on to gherkin <code>Result</code>s, stack traces and long error messages.
+ * <p>
+ * Each issue costs its key, a map entry, 1 + 8 + 4 bytes of status, duration and scenario count
+ * and at most {@link IssueResult#MAX_ERROR_LENGTH} characters of error message.
+ * Not thread safe.
+ */
+public class IssueStateStore {
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private int size;
+
+	private String[] keys;
+	/** {@link IssueResult#severity(String)} of the worst result */
+	private byte[] statuses;
+	/** The worst status of the few issues whose status isn't one of the known gherkin statuses */
+	private final Map<Integer, String> otherStatuses = new HashMap<Integer, String>();
+	private String[] errors;
+	private long[] durations;
+	private int[] scenarios;
+
+	public IssueStateStore() {
+		this( 64 );
+	}
+
+	public IssueStateStore( int expectedIssues ) {
+		int capacity = Math.max( 1, expectedIssues );
+		keys = new String[capacity];
+		statuses = new byte[capacity];
+		errors = new String[capacity];
+		durations = new long[capacity];
+		scenarios = new int[capacity];
+	}
+
+	/** @return the number of issues in the store - IDs run from 0 to <code>size() - 1</code> */
+	public int size() {
+		return size;
+	}
+
+	/** @return the ID of the issue, adding it to the store if it isn't already there */
+	public int intern( String key ) {
+		Integer id = ids.get( key );
+		if( id != null ) {
+			return id;
+		}
+
+		if( size == keys.length ) {
+			grow();
+		}
+		keys[size] = key;
+		ids.put( key, size );
+		return size++;
+	}
+
+	/** @return the ID of the issue, or -1 if it is not in the store */
+	public int getId( String key ) {
+		Integer id = ids.get( key );
+		return id == null ? -1 : id;
+	}
+
+	public String getKey( int id ) {
+		return keys[id];
+	}
+
+	/** @return "passed", "failed" etc */
+	public String getStatus( int id ) {
+		if( !otherStatuses.isEmpty() ) {
+			String status = otherStatuses.get( id );
+			if( status != null ) {
+				return status;
+			}
+		}
+		return IssueResult.status( statuses[id] );
+	}
+
+	/** @return the error message of the worst result, formatted for JIRA, or null */
+	public String getError( int id ) {
+		return errors[id];
+	}
+
+	/** @return total duration in nanoseconds */
+	public long getDuration( int id ) {
+		return durations[id];
+	}
+
+	public int getScenarios( int id ) {
+		return scenarios[id];
+	}
+
+	/**
+	 * Records the result of one or more scenarios.
+	 * The status and error are replaced only if <code>status</code> is more severe than the current status,
+	 * so the first of several equally bad errors is kept.
+	 */
+	public void record( int id, String status, String error, long duration, int scenarioCount ) {
+		int severity = IssueResult.severity( status );
+		if( severity > statuses[id] ) {
+			statuses[id] = (byte)severity;
+			errors[id] = IssueResult.truncate( error );
+			if( !IssueResult.status(severity).equals(status) ) {
+				otherStatuses.put( id, status );
+			} else if( !otherStatuses.isEmpty() ) {
+				otherStatuses.remove( id );
+			}
+		}
+		durations[id] += duration;
+		scenarios[id] += scenarioCount;
+	}
+
+	public void record( IssueResult result ) {
+		record( intern(result.key), result.status, result.error, result.duration, result.scenarios );
+	}
+
+	/** Merges another store (eg: from another CI shard) into this one, worst result wins */
+	public void merge( IssueStateStore other ) {
+		for( int otherId = 0; otherId < other.size; otherId++ ) {
+			int id = intern( other.keys[otherId] );
+			record( id, other.getStatus(otherId), other.errors[otherId], other.durations[otherId], other.scenarios[otherId] );
+		}
+	}
+
+	/** @return a copy of the issue's state, for writing to a partial results file */
+	public IssueResult toIssueResult( int id ) {
+		IssueResult result = new IssueResult( keys[id] );
+		result.status = getStatus( id );
+		result.error = errors[id];
+		result.duration = durations[id];
+		result.scenarios = scenarios[id];
+		return result;
+	}
+
+	private void grow() {
+		int capacity = keys.length * 2;
+		keys = Arrays.copyOf( keys, capacity );
+		statuses = Arrays.copyOf( statuses, capacity );
+		errors = Arrays.copyOf( errors, capacity );
+		durations = Arrays.copyOf( durations, capacity );
+		scenarios = Arrays.copyOf( scenarios, capacity );
+	}
+}
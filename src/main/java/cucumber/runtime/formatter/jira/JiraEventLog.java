@@ -0,0 +1,282 @@
+package cucumber.runtime.formatter.jira;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Structured log of formatter actions and JIRA calls, written as one JSON object per line.
+ * <p>
+ * Enable with <code>-Djira.eventLog=target/jira-events.jsonl</code>, and optionally
+ * <code>-Djira.eventLog.capacity=8192</code>.  Events are queued by the test thread and written by a background thread.
+ * If the queue is full the event is dropped and counted rather than blocking the tests -
+ * the count is written in the final "eventLog.closed" event.
+ * <p>
+ * Each formatter {@link #open()}s the shared log and closes it when it has finished.  The file is closed when the last
+ * of them closes it, and later formatters in the same JVM (eg: other Cucumber runners in the same surefire fork) append to it.
+ * <p>
+ * To replay a log after the run:
+ * <pre>java cucumber.runtime.formatter.jira.JiraEventLog target/jira-events.jsonl</pre>
+ */
+public class JiraEventLog {
+	private static final Logger log = LoggerFactory.getLogger(JiraEventLog.class);
+	private static final String CHARSET = "UTF-8";
+	private static final Map<String, Object> END = new LinkedHashMap<String, Object>();
+
+	private static JiraEventLog instance;
+	/** Callers of {@link #open()} which haven't closed the shared log yet */
+	private static int users;
+	/** true once the <code>-Djira.eventLog</code> file has been opened by this JVM */
+	private static boolean appending;
+
+	private final BlockingQueue<Map<String, Object>> queue;
+	private final AtomicLong dropped = new AtomicLong();
+	/** {@link #event(String, Object...)} holds the read lock while queuing, {@link #close()} takes the write lock */
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private final Thread writer;
+	private volatile boolean closed;
+
+	/**
+	 * Opens the shared event log - it stays open until each caller of this method has called {@link #close()}.
+	 * @return see {@link #getInstance()}
+	 */
+	public static synchronized JiraEventLog open() {
+		JiraEventLog events = getInstance();
+		users++;
+		return events;
+	}
+
+	/**
+	 * @return the event log configured by <code>-Djira.eventLog</code>, without keeping it open - see {@link #open()}.
+	 * 			If it isn't set, or the file can't be opened, events are discarded.
+	 */
+	public static synchronized JiraEventLog getInstance() {
+		if( instance == null ) {
+			String path = System.getProperty("jira.eventLog");
+			int capacity = Integer.getInteger("jira.eventLog.capacity", 8192);
+			Writer out = null;
+			if( path != null ) {
+				try {
+					File file = new File( path );
+					File dir = file.getAbsoluteFile().getParentFile();
+					if( dir != null ) {
+						dir.mkdirs();
+					}
+					out = new BufferedWriter( new OutputStreamWriter( new FileOutputStream(file, appending), CHARSET ) );
+					appending = true;
+				} catch( IOException e ) {
+					log.warn("Failed to open JIRA event log " + path + ": " + e.getMessage());
+				}
+			}
+			instance = new JiraEventLog( out, capacity );
+		}
+		return instance;
+	}
+
+	/**
+	 * @param out - where the events are written, or null to discard them
+	 * @param capacity - the maximum number of events waiting to be written
+	 */
+	public JiraEventLog( Writer out, int capacity ) {
+		if( out == null ) {
+			queue = null;
+			writer = null;
+			return;
+		}
+
+		queue = new ArrayBlockingQueue<Map<String, Object>>( Math.max(1, capacity) );
+		writer = new Thread( new EventWriter(out), "jira-event-log" );
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public boolean isEnabled() {
+		return queue != null && !closed;
+	}
+
+	/**
+	 * Queues an event without blocking.
+	 * @param type - eg: "scenario.result", "jira.transition"
+	 * @param fields - alternating names and values, eg: "issue", "MYPROJECT-123", "status", "failed"
+	 */
+	public void event( String type, Object... fields ) {
+		if( queue == null ) {
+			return;
+		}
+
+		closeLock.readLock().lock();
+		try {
+			if( closed ) {
+				dropped.incrementAndGet();
+				return;
+			}
+			offer( type, fields );
+		} finally {
+			closeLock.readLock().unlock();
+		}
+	}
+
+	private void offer( String type, Object[] fields ) {
+		Map<String, Object> event = new LinkedHashMap<String, Object>();
+		event.put( "time", System.currentTimeMillis() );
+		event.put( "type", type );
+		event.put( "thread", Thread.currentThread().getName() );
+		for( int i = 0; i + 1 < fields.length; i += 2 ) {
+			Object value = fields[i + 1];
+			if( value != null && !(value instanceof Number) && !(value instanceof Boolean) ) {
+				value = IssueResult.truncate( value.toString() );
+			}
+			event.put( String.valueOf(fields[i]), value );
+		}
+
+		if( !queue.offer(event) ) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/** @return milliseconds since <code>startNanos</code>, for the "durationMs" field */
+	public static long millisSince( long startNanos ) {
+		return TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startNanos );
+	}
+
+	/** @return the number of events which were discarded because the queue was full or the log was closed */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Writes any queued events and closes the file.  Events which arrive after this are counted as dropped.
+	 * The shared log is only closed once every caller of {@link #open()} has closed it.
+	 */
+	public void close() {
+		synchronized( JiraEventLog.class ) {
+			if( this == instance ) {
+				if( --users > 0 ) {
+					return;
+				}
+				users = 0;
+				instance = null;
+			}
+		}
+
+		if( !isEnabled() ) {
+			return;
+		}
+		// Waits for any event() which is queuing, so that nothing is queued after END
+		closeLock.writeLock().lock();
+		try {
+			closed = true;
+		} finally {
+			closeLock.writeLock().unlock();
+		}
+
+		try {
+			if( writer.isAlive() ) {
+				queue.put( END );
+			}
+			writer.join();
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Reads an event log written by a previous run */
+	public static List<Map<String, Object>> read( File file ) throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		List<Map<String, Object>> events = new ArrayList<Map<String, Object>>();
+
+		BufferedReader in = new BufferedReader( new InputStreamReader( new FileInputStream(file), CHARSET ) );
+		try {
+			String line;
+			while( (line = in.readLine()) != null ) {
+				if( line.trim().length() > 0 ) {
+					@SuppressWarnings("unchecked")
+					Map<String, Object> event = mapper.readValue( line, LinkedHashMap.class );
+					events.add( event );
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return events;
+	}
+
+	/** Prints the events of a previous run */
+	public static void main( String[] args ) throws IOException {
+		if( args.length != 1 ) {
+			System.err.println("Usage: JiraEventLog <event log file>");
+			System.exit(1);
+		}
+
+		for( Map<String, Object> event : read( new File(args[0]) ) ) {
+			Object time = event.remove("time");
+			Object type = event.remove("type");
+			System.out.println( time + " " + type + " " + event );
+		}
+	}
+
+	private class EventWriter implements Runnable {
+		private final Writer out;
+		private final ObjectMapper mapper = new ObjectMapper();
+
+		EventWriter( Writer out ) {
+			this.out = out;
+		}
+
+		@Override
+		public void run() {
+			try {
+				try {
+					while( true ) {
+						Map<String, Object> event = queue.take();
+						if( event == END ) {
+							break;
+						}
+						write( event );
+						if( queue.isEmpty() ) {
+							out.flush();
+						}
+					}
+
+					Map<String, Object> summary = new LinkedHashMap<String, Object>();
+					summary.put( "time", System.currentTimeMillis() );
+					summary.put( "type", "eventLog.closed" );
+					summary.put( "dropped", dropped.get() );
+					write( summary );
+				} finally {
+					out.close();
+				}
+			} catch( InterruptedException e ) {
+				// daemon thread - the JVM is exiting
+			} catch( IOException e ) {
+				closed = true;
+				log.warn("Failed to write JIRA event log: " + e.getMessage());
+			}
+		}
+
+		private void write( Map<String, Object> event ) throws IOException {
+			out.write( mapper.writeValueAsString(event) );
+			out.write( '\n' );
+		}
+	}
+}
@@ -40,7 +40,22 @@ public class JiraTransitionsConfig {
 	private JiraTransitionsConfig() {}
 	
 	public static JiraTransitionsConfig load() throws JsonParseException, JsonMappingException, IOException {
-		return load( JiraTransitionsConfig.class.getResourceAsStream("/jira-transitions.json") );
+		return load( "/jira-transitions.json" );
+	}
+	
+	/**
+	 * @param resource - name of a classpath resource, eg: "/jira-transitions.json".
+	 * 					The default configuration is used if the resource does not exist.
+	 */
+	public static JiraTransitionsConfig load( String resource ) throws JsonParseException, JsonMappingException, IOException {
+		InputStream in = JiraTransitionsConfig.class.getResourceAsStream( resource );
+		try {
+			return load( in );
+		} finally {
+			if( in != null ) {
+				in.close();
+			}
+		}
 	}
 	
 	public static JiraTransitionsConfig load( InputStream in ) throws JsonParseException, JsonMappingException, IOException {
@@ -0,0 +1,156 @@
+package cucumber.runtime.formatter;
+
+import gherkin.formatter.Argument;
+import gherkin.formatter.model.Match;
+import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.Tag;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import cucumber.runtime.formatter.jira.IssueStateStore;
+import cucumber.runtime.formatter.jira.JiraConnectionTest.CountingConnection;
+import cucumber.runtime.formatter.jira.JiraResultsReducer;
+import cucumber.runtime.formatter.jira.JiraRouter;
+
+import static org.junit.Assert.*;
+
+public class JiraFormatterConnectionTest {
+
+	@Test
+	public void testRunWithoutIssuesNeverConnects() throws URISyntaxException {
+		// Given
+		CountingConnection connection = new CountingConnection();
+		JiraFormatter formatter = new JiraFormatter( new JiraRouter( connection, "/no-such-jira-routes.json" ) );
+
+		ArrayList<Tag> tags = new ArrayList<Tag>();
+		tags.add( new Tag("@smoke", null) );
+
+		// When
+		formatter.uri("features/demo.feature");
+		for( int i = 0; i < 3; i++ ) {
+			formatter.scenario( new Scenario(null, tags, "Scenario", "Demo " + i, null, i, null) );
+			formatter.match( new Match(Collections.<Argument>emptyList(), "Steps.java:10") );
+			formatter.result( new Result(Result.PASSED, 1L, null) );
+		}
+		formatter.done();
+		formatter.close();
+
+		// Then
+		assertEquals( 0, connection.clientsCreated );
+		assertFalse( connection.isConnected() );
+	}
+
+	@Test
+	public void testFailedUpdatesFailTheRun() throws URISyntaxException {
+		// Given - the client returned by CountingConnection can't fetch issues
+		CountingConnection connection = new CountingConnection();
+		JiraFormatter formatter = new JiraFormatter( new JiraRouter( connection, "/no-such-jira-routes.json" ) );
+
+		ArrayList<Tag> tags = new ArrayList<Tag>();
+		tags.add( new Tag("@issue_MYPROJECT-123", null) );
+		formatter.scenario( new Scenario(null, tags, "Scenario", "Demo", null, 1, null) );
+		formatter.result( new Result(Result.FAILED, 1L, "expected:<1> but was:<2>") );
+
+		// When
+		try {
+			formatter.done();
+			fail("done() should report the failed update");
+		} catch( IllegalStateException e ) {
+			// Then - the client has been closed, because Cucumber won't call close()
+			assertTrue( e.getMessage(), e.getMessage().contains("MYPROJECT-123") );
+			assertEquals( 1, connection.clientsCreated );
+			assertEquals( 1, connection.clientsClosed );
+			assertFalse( connection.isConnected() );
+			// Results are sent as they're known - they're only kept when writing a shard's results file
+			assertNull( formatter.getIssues() );
+		}
+	}
+
+	@Test
+	public void testShardNeedsNoCredentials() throws Exception {
+		// Given - no credentials in the URL
+		File resultsFile = File.createTempFile("shard", ".json");
+		resultsFile.deleteOnExit();
+		JiraFormatter formatter = shardFormatter( resultsFile );
+
+		// When
+		runScenario( formatter, "@issue_MYPROJECT-123", new Result(Result.FAILED, 1L, "expected:<1> but was:<2>") );
+		formatter.done();
+		formatter.close();
+
+		// Then
+		IssueStateStore results = JiraResultsReducer.read( resultsFile );
+		assertEquals( 1, results.size() );
+		assertEquals( "failed", results.getStatus( results.getId("MYPROJECT-123") ) );
+	}
+
+	@Test
+	public void testScenarioWithoutIssueDoesNotLeakIntoTheNext() throws Exception {
+		// Given
+		File resultsFile = File.createTempFile("shard", ".json");
+		resultsFile.deleteOnExit();
+		JiraFormatter formatter = shardFormatter( resultsFile );
+
+		// When
+		runScenario( formatter, "@smoke", new Result(Result.FAILED, 1000L, "expected:<1> but was:<2>") );
+		runScenario( formatter, "@issue_MYPROJECT-123", new Result(Result.PASSED, 10L, null) );
+		formatter.done();
+		formatter.close();
+
+		// Then
+		IssueStateStore results = JiraResultsReducer.read( resultsFile );
+		int id = results.getId("MYPROJECT-123");
+		assertEquals( "passed", results.getStatus(id) );
+		assertNull( results.getError(id) );
+		assertEquals( 10, results.getDuration(id) );
+	}
+
+	@Test
+	public void testRunnersInOneJvmShareTheResultsFile() throws Exception {
+		// Given - two Cucumber runners in the same JVM
+		File resultsFile = File.createTempFile("shard", ".json");
+		resultsFile.deleteOnExit();
+		JiraFormatter first = shardFormatter( resultsFile );
+		JiraFormatter second = shardFormatter( resultsFile );
+
+		// When
+		runScenario( first, "@issue_MYPROJECT-1", new Result(Result.PASSED, 10L, null) );
+		first.done();
+		first.close();
+		runScenario( second, "@issue_MYPROJECT-2", new Result(Result.PASSED, 10L, null) );
+		runScenario( second, "@issue_MYPROJECT-1", new Result(Result.FAILED, 10L, "expected:<1> but was:<2>") );
+		second.done();
+		second.close();
+
+		// Then
+		IssueStateStore results = JiraResultsReducer.read( resultsFile );
+		assertEquals( 2, results.size() );
+		assertEquals( "failed", results.getStatus( results.getId("MYPROJECT-1") ) );
+		assertEquals( 2, results.getScenarios( results.getId("MYPROJECT-1") ) );
+		assertEquals( "passed", results.getStatus( results.getId("MYPROJECT-2") ) );
+	}
+
+	private static JiraFormatter shardFormatter( File resultsFile ) throws Exception {
+		System.setProperty( "jira.results", resultsFile.getPath() );
+		try {
+			return new JiraFormatter( new URL("http://jira/browse/MYPROJECT") );
+		} finally {
+			System.clearProperty("jira.results");
+		}
+	}
+
+	private static void runScenario( JiraFormatter formatter, String tag, Result result ) {
+		ArrayList<Tag> tags = new ArrayList<Tag>();
+		tags.add( new Tag(tag, null) );
+		formatter.scenario( new Scenario(null, tags, "Scenario", "Demo", null, 1, null) );
+		formatter.match( new Match(Collections.<Argument>emptyList(), "Steps.java:10") );
+		formatter.result( result );
+	}
+}
@@ -0,0 +1,40 @@
+package cucumber.runtime.formatter.jira;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IssueResultTest {
+
+	@Test
+	public void testSeverityOrder() {
+		assertTrue( IssueResult.severity("passed") < IssueResult.severity("skipped") );
+		assertTrue( IssueResult.severity("skipped") < IssueResult.severity("pending") );
+		assertTrue( IssueResult.severity("pending") < IssueResult.severity("undefined") );
+		assertTrue( IssueResult.severity("undefined") < IssueResult.severity("failed") );
+		assertEquals( "undefined", IssueResult.status( IssueResult.severity("undefined") ) );
+	}
+
+	@Test
+	public void testUnknownStatusRanksWithUndefined() {
+		assertEquals( IssueResult.severity("undefined"), IssueResult.severity("ambiguous") );
+	}
+
+	@Test
+	public void testTruncate() {
+		// Given
+		char[] error = new char[IssueResult.MAX_ERROR_LENGTH * 2];
+		Arrays.fill( error, 'x' );
+
+		// When
+		String truncated = IssueResult.truncate( new String(error) );
+
+		// Then
+		assertEquals( IssueResult.MAX_ERROR_LENGTH, truncated.length() );
+		assertTrue( truncated.endsWith("...") );
+		assertEquals( "short", IssueResult.truncate("short") );
+		assertNull( IssueResult.truncate(null) );
+	}
+}
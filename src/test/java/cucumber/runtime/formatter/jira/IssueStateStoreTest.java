@@ -0,0 +1,129 @@
+package cucumber.runtime.formatter.jira;
+
+import java.util.Arrays;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IssueStateStoreTest {
+
+	@Test
+	public void testWorstResultWins() {
+		// Given
+		IssueStateStore store = new IssueStateStore();
+		int id = store.intern("MYPROJECT-1");
+
+		// When
+		store.record(id, "passed", null, 10, 1);
+		store.record(id, "skipped", null, 0, 1);
+		store.record(id, "failed", "first failure", 20, 1);
+		store.record(id, "failed", "second failure", 30, 1);
+		store.record(id, "passed", null, 40, 1);
+
+		// Then
+		assertEquals( "failed", store.getStatus(id) );
+		assertEquals( "first failure", store.getError(id) );
+		assertEquals( 100, store.getDuration(id) );
+		assertEquals( 5, store.getScenarios(id) );
+	}
+
+	@Test
+	public void testUndefinedReplacesEarlierPending() {
+		// Given
+		IssueStateStore store = new IssueStateStore();
+		int id = store.intern("MYPROJECT-1");
+
+		// When
+		store.record(id, "pending", "TODO: implement me", 0, 1);
+		store.record(id, "undefined", null, 0, 1);
+
+		// Then
+		assertEquals( "undefined", store.getStatus(id) );
+		assertNull( store.getError(id) );
+	}
+
+	@Test
+	public void testUnknownStatusIsKept() {
+		// Given
+		IssueStateStore store = new IssueStateStore();
+		int unknown = store.intern("MYPROJECT-1");
+		int laterFailure = store.intern("MYPROJECT-2");
+
+		// When
+		store.record(unknown, "ambiguous", "two step definitions match", 0, 1);
+		store.record(unknown, "undefined", null, 0, 1);
+		store.record(laterFailure, "ambiguous", "two step definitions match", 0, 1);
+		store.record(laterFailure, "failed", "expected:<1> but was:<2>", 0, 1);
+
+		// Then
+		assertEquals( "ambiguous", store.getStatus(unknown) );
+		assertEquals( "ambiguous", store.toIssueResult(unknown).status );
+		assertEquals( "failed", store.getStatus(laterFailure) );
+	}
+
+	@Test
+	public void testErrorIsTruncated() {
+		// Given
+		char[] error = new char[IssueResult.MAX_ERROR_LENGTH * 2];
+		Arrays.fill( error, 'x' );
+		IssueStateStore store = new IssueStateStore();
+		int id = store.intern("MYPROJECT-1");
+
+		// When
+		store.record(id, "failed", new String(error), 0, 1);
+
+		// Then
+		assertEquals( IssueResult.MAX_ERROR_LENGTH, store.getError(id).length() );
+	}
+
+	@Test
+	public void testGrowsAndKeepsIds() {
+		// Given
+		IssueStateStore store = new IssueStateStore(1);
+
+		// When
+		for( int i = 0; i < 1000; i++ ) {
+			store.record( store.intern("MYPROJECT-" + i), i % 2 == 0 ? "passed" : "failed", null, i, 1 );
+		}
+
+		// Then
+		assertEquals( 1000, store.size() );
+		assertEquals( 42, store.intern("MYPROJECT-42") );
+		assertEquals( "MYPROJECT-42", store.getKey(42) );
+		assertEquals( "passed", store.getStatus(42) );
+		assertEquals( "failed", store.getStatus(43) );
+		assertEquals( 43, store.getDuration(43) );
+		assertEquals( -1, store.getId("OTHER-1") );
+	}
+
+	/** Not an assertion - run manually to see how the heap grows with the size of the suite */
+	@Ignore("footprint benchmark")
+	@Test
+	public void testFootprint() {
+		String error = "java.lang.AssertionError: expected:<1> but was:<2>\n\tat demo.Steps.then(Steps.java:42)\n";
+		for( int issues = 1000; issues <= 50000; issues *= 50 ) {
+			long before = usedHeap();
+			IssueStateStore store = new IssueStateStore();
+			for( int i = 0; i < issues; i++ ) {
+				int id = store.intern( "MYPROJECT-" + i );
+				// 10 scenarios per issue, 1 issue in 10 fails
+				for( int scenario = 0; scenario < 10; scenario++ ) {
+					store.record( id, i % 10 == 0 && scenario == 0 ? "failed" : "passed", error, 1000000L, 1 );
+				}
+			}
+			long after = usedHeap();
+			System.out.println( issues + " issues: " + (after - before) / 1024 + " KB retained, "
+								+ (after - before) / issues + " bytes per issue (" + store.size() + " issues in store)" );
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for( int i = 0; i < 3; i++ ) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,142 @@
+package cucumber.runtime.formatter.jira;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JiraEventLogTest {
+
+	@Test
+	public void testEventsAreWrittenInOrder() {
+		// Given
+		StringWriter out = new StringWriter();
+		JiraEventLog events = new JiraEventLog( out, 16 );
+
+		// When
+		events.event( "uri", "uri", "features/demo.feature" );
+		events.event( "scenario.result", "issue", "MYPROJECT-123", "status", "failed", "durationMs", 42L );
+		events.close();
+
+		// Then
+		String[] lines = out.toString().split("\n");
+		assertEquals( 3, lines.length );
+		assertTrue( lines[0].contains("\"type\":\"uri\"") );
+		assertTrue( lines[1].contains("\"issue\":\"MYPROJECT-123\"") );
+		assertTrue( lines[1].contains("\"durationMs\":42") );
+		assertTrue( lines[2].contains("\"type\":\"eventLog.closed\"") );
+		assertTrue( lines[2].contains("\"dropped\":0") );
+		assertFalse( events.isEnabled() );
+	}
+
+	@Test
+	public void testDisabledLogDiscardsEvents() {
+		// Given
+		JiraEventLog events = new JiraEventLog( null, 16 );
+
+		// When
+		events.event( "uri", "uri", "features/demo.feature" );
+		events.close();
+
+		// Then
+		assertFalse( events.isEnabled() );
+		assertEquals( 0, events.getDropped() );
+	}
+
+	@Test
+	public void testEventsAreDroppedWhenTheWriterFallsBehind() throws InterruptedException {
+		// Given
+		BlockingWriter out = new BlockingWriter();
+		JiraEventLog events = new JiraEventLog( out, 1 );
+		events.event( "uri", "uri", "features/demo.feature" );
+		out.writing.await();
+
+		// When
+		for( int i = 0; i < 10; i++ ) {
+			events.event( "match", "issue", "MYPROJECT-" + i );
+		}
+		out.release.countDown();
+		events.close();
+
+		// Then
+		assertEquals( 9, events.getDropped() );
+		String[] lines = out.toString().split("\n");
+		assertEquals( 3, lines.length );
+		assertTrue( lines[1].contains("\"issue\":\"MYPROJECT-0\"") );
+		assertTrue( lines[2].contains("\"type\":\"eventLog.closed\"") );
+		assertTrue( lines[2].contains("\"dropped\":" + events.getDropped()) );
+	}
+
+	@Test
+	public void testEventsAfterCloseAreDropped() {
+		// Given
+		StringWriter out = new StringWriter();
+		JiraEventLog events = new JiraEventLog( out, 16 );
+		events.close();
+
+		// When
+		events.event( "done", "issues", 1 );
+
+		// Then
+		assertEquals( 1, events.getDropped() );
+		assertEquals( 1, out.toString().split("\n").length );
+	}
+
+	@Test
+	public void testSharedLogStaysOpenUntilTheLastUserCloses() throws IOException {
+		// Given - two runners in one JVM, after anything left open by other tests
+		JiraEventLog.open().close();
+		File file = File.createTempFile("jira-events", ".jsonl");
+		file.deleteOnExit();
+		System.setProperty( "jira.eventLog", file.getPath() );
+		try {
+			JiraEventLog first = JiraEventLog.open();
+			JiraEventLog second = JiraEventLog.open();
+			assertSame( first, second );
+
+			// When
+			first.event( "done", "runner", 1 );
+			first.close();
+			second.event( "done", "runner", 2 );
+			second.close();
+			JiraEventLog third = JiraEventLog.open();
+			third.event( "done", "runner", 3 );
+			third.close();
+
+			// Then - the third runner appended to the file
+			assertNotSame( first, third );
+			assertEquals( 0, first.getDropped() );
+			List<Map<String, Object>> events = JiraEventLog.read( file );
+			assertEquals( 5, events.size() );
+			assertEquals( 2, events.get(1).get("runner") );
+			assertEquals( "eventLog.closed", events.get(2).get("type") );
+			assertEquals( 3, events.get(3).get("runner") );
+			assertEquals( "eventLog.closed", events.get(4).get("type") );
+		} finally {
+			System.clearProperty("jira.eventLog");
+		}
+	}
+
+	/** Blocks the event log's writer thread in its first write until {@link #release} is counted down */
+	private static class BlockingWriter extends StringWriter {
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void write( String str ) {
+			writing.countDown();
+			try {
+				release.await();
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			super.write( str );
+		}
+	}
+}
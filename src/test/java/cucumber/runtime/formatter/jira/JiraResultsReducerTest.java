@@ -0,0 +1,64 @@
+package cucumber.runtime.formatter.jira;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import cucumber.runtime.formatter.jira.JiraConnectionTest.CountingConnection;
+
+import static org.junit.Assert.*;
+
+public class JiraResultsReducerTest {
+
+	@Test
+	public void testMergeShards() throws IOException, InterruptedException {
+		// Given
+		IssueStateStore shard1 = new IssueStateStore();
+		shard1.record( shard1.intern("MYPROJECT-1"), "passed", null, 10, 1 );
+		shard1.record( shard1.intern("MYPROJECT-2"), "undefined", null, 0, 1 );
+		IssueStateStore shard2 = new IssueStateStore();
+		shard2.record( shard2.intern("MYPROJECT-1"), "failed", "Tables were not identical:", 20, 2 );
+
+		File shard1File = File.createTempFile("shard1", ".json");
+		File shard2File = File.createTempFile("shard2", ".json");
+		shard1File.deleteOnExit();
+		shard2File.deleteOnExit();
+		JiraResultsReducer.write( shard1File, shard1 );
+		JiraResultsReducer.write( shard2File, shard2 );
+
+		// When
+		List<File> files = new ArrayList<File>();
+		files.add( shard1File );
+		files.add( shard2File );
+		IssueStateStore merged = JiraResultsReducer.merge( files );
+
+		// Then
+		assertEquals( 2, merged.size() );
+		int id = merged.getId("MYPROJECT-1");
+		assertEquals( "failed", merged.getStatus(id) );
+		assertEquals( "Tables were not identical:", merged.getError(id) );
+		assertEquals( 30, merged.getDuration(id) );
+		assertEquals( 3, merged.getScenarios(id) );
+		assertEquals( "undefined", merged.getStatus( merged.getId("MYPROJECT-2") ) );
+	}
+
+	@Test
+	public void testApplyReportsFailedTransitions() throws URISyntaxException, InterruptedException {
+		// Given - the client returned by CountingConnection can't fetch issues
+		IssueStateStore results = new IssueStateStore();
+		results.record( results.intern("MYPROJECT-1"), "failed", "expected:<1> but was:<2>", 10, 1 );
+		results.record( results.intern("MYPROJECT-2"), "passed", null, 10, 1 );
+		JiraRouter router = new JiraRouter( new CountingConnection(), "/no-such-jira-routes.json" );
+
+		// When
+		List<String> failures = JiraResultsReducer.apply( results, router );
+
+		// Then
+		assertEquals( 2, failures.size() );
+		assertTrue( failures.get(0).startsWith("MYPROJECT-1: ") );
+	}
+}
@@ -0,0 +1,70 @@
+package cucumber.runtime.formatter.jira;
+
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import cucumber.runtime.formatter.jira.JiraConnectionTest.CountingConnection;
+
+import static org.junit.Assert.*;
+
+public class JiraRouterTest {
+
+	@Test
+	public void testLongestPrefixWins() throws URISyntaxException {
+		// Given
+		JiraRouter router = new JiraRouter( new CountingConnection(), "/jira-routes-test.json" );
+
+		// When
+		JiraConnection project = router.getConnection("MYPROJECT-2");
+		JiraConnection subProject = router.getConnection("MYPROJECT-123");
+
+		// Then
+		assertEquals( "jira2", project.getServerUri().getHost() );
+		assertEquals( "jira3", subProject.getServerUri().getHost() );
+		assertEquals( 8080, subProject.getServerUri().getPort() );
+	}
+
+	@Test
+	public void testUnmatchedIssuesUseTheDefaultConnection() throws URISyntaxException {
+		// Given
+		CountingConnection defaultConnection = new CountingConnection();
+		JiraRouter router = new JiraRouter( defaultConnection, "/jira-routes-test.json" );
+
+		// Then
+		assertSame( defaultConnection, router.getConnection("UNROUTED-1") );
+		assertSame( defaultConnection, new JiraRouter( defaultConnection, "/no-such-jira-routes.json" ).getConnection("MYPROJECT-1") );
+	}
+
+	@Test
+	public void testIdenticalServersShareAConnection() throws URISyntaxException {
+		// Given
+		JiraRouter router = new JiraRouter( new CountingConnection(), "/jira-routes-test.json" );
+
+		// Then
+		assertSame( router.getConnection("MYPROJECT-2"), router.getConnection("SHARED-1") );
+		// Same server, but a different rate limit or credentials
+		assertNotSame( router.getConnection("MYPROJECT-2"), router.getConnection("LIMITED-1") );
+		assertNotSame( router.getConnection("MYPROJECT-2"), router.getConnection("OTHERUSER-1") );
+		// default, jira2, jira3, jira2 rate limited, jira2 other user
+		assertEquals( 5, router.getConnections().size() );
+	}
+
+	@Test
+	public void testThrottleSpacesRequests() throws URISyntaxException {
+		// Given
+		JiraRouter router = new JiraRouter( new CountingConnection(), "/jira-routes-test.json" );
+		JiraConnection limited = router.getConnection("LIMITED-1");	// 20 requests per second
+
+		// When
+		long start = System.nanoTime();
+		limited.throttle();
+		limited.throttle();
+		limited.throttle();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+		// Then - the second request waits 50ms and the third 100ms
+		assertTrue( "only waited " + elapsedMillis + "ms", elapsedMillis >= 90 );
+	}
+}